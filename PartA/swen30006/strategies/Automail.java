@@ -24,11 +24,11 @@ public class Automail {
     	//// Swap the next two lines for the two below those
 //    	IRobotBehaviour robotBehaviourW = new SimpleRobotBehaviour(weak);
 //    	IRobotBehaviour robotBehaviourS = new SimpleRobotBehaviour(strong);
-    	IRobotBehaviour robotBehaviourW = new MyRobotBehaviour(weak);
-    	IRobotBehaviour robotBehaviourS = new MyRobotBehaviour(strong);
+    	IRobotBehaviour robotBehaviourW = new MyRobotBehaviour(weak, mailPool);
+    	IRobotBehaviour robotBehaviourS = new MyRobotBehaviour(strong, mailPool);
     	    	
     	/** Initialize robot */
-    	robot1 = new Robot(robotBehaviourW, delivery, mailPool, weak); /* shared behaviour because identical and stateless */
+    	robot1 = new Robot(robotBehaviourW, delivery, mailPool, weak); /* each robot has its own behaviour, it tracks the route and floor */
     	robot2 = new Robot(robotBehaviourS, delivery, mailPool, strong);
     }
     
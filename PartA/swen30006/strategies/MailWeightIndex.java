@@ -0,0 +1,413 @@
+/**
+ * Author: Maleakhi Agung Wijaya
+ * Student Number: 784091
+ * Date: 15/03/2018
+ */
+package strategies;
+
+import java.util.Comparator;
+import automail.MailItem;
+
+/**
+ * Index over the weight of mail items used by the mail pool so that a robot
+ * of any carrying capacity can be served without disturbing the rest of the
+ * pool.
+ *
+ * Data structure of the index:
+ * 1. Every gram from 0 to MAX_WEIGHT is a bucket (leaf). A bucket holds the
+ *    items of exactly that weight in a list ordered by the urgency
+ *    comparator, so the head of the bucket is its most urgent item. Items
+ *    heavier than MAX_WEIGHT go to one extra OVERWEIGHT bucket, which only a
+ *    weight limit above MAX_WEIGHT looks into, checking each item's weight.
+ * 2. On top of the buckets is a segment tree. Each node remembers the most
+ *    urgent item and the number of items below it, hence the most urgent item
+ *    at or below any weight limit is found by looking at O(log n) nodes
+ *    instead of scanning the whole pool.
+ * 3. Nodes are never modified. Adding or removing an item creates new nodes
+ *    on the path from its bucket up to the root and shares every other node
+ *    with the old tree, so a snapshot of the index is only a copy of the root
+ *    and costs O(1) no matter how big the pool is.
+ */
+public class MailWeightIndex {
+	/** Instance Variables */
+	private Comparator<MailItem> comparator;
+	private Node root; // null when the index is empty
+	private int leaves; // number of leaves, power of two
+
+	/** Constant */
+	/* All mail items arriving at the building weigh at most 5000 grams, heavier
+	 * items are kept in the overweight bucket
+	 */
+	public static final int MAX_WEIGHT = 5000;
+	public static final int OVERWEIGHT = MAX_WEIGHT + 1;
+	public static final int LOWEST_BUCKET = 0;
+
+	/**
+	 * Constructor for MailWeightIndex which builds an empty tree.
+	 * @param comparator - ordering used to decide which item is more urgent,
+	 * the smaller item according to the comparator is delivered first
+	 */
+	public MailWeightIndex(Comparator<MailItem> comparator) {
+		this.comparator = comparator;
+
+		// Round the number of buckets up to a power of two so that every node
+		// splits its range in two equal halves
+		leaves = 1;
+		while (leaves <= OVERWEIGHT) {
+			leaves *= 2;
+		}
+		root = null;
+	}
+
+	/**
+	 * Constructor used by snapshot, shares the whole tree of another index.
+	 * @param other - index being copied
+	 */
+	private MailWeightIndex(MailWeightIndex other) {
+		this.comparator = other.comparator;
+		this.leaves = other.leaves;
+		this.root = other.root;
+	}
+
+	/**
+	 * Take a snapshot of the index in O(1). Adding or removing items from the
+	 * snapshot never changes this index and vice versa.
+	 * @return independent index with the same items
+	 */
+	public MailWeightIndex snapshot() {
+		return new MailWeightIndex(this);
+	}
+
+	/**
+	 * Add an item to the bucket of its weight.
+	 * @param mailItem - mail item being added
+	 */
+	public void add(MailItem mailItem) {
+		root = add(root, LOWEST_BUCKET, leaves, toBucket(mailItem.getWeight()),
+				mailItem);
+	}
+
+	/**
+	 * Get the most urgent item that satisfy the weight limit without removing
+	 * it from the index.
+	 * @param weightLimit - weight limit which the robot can carry
+	 * @return most urgent mail item, null if there is no such item
+	 */
+	public MailItem peek(int weightLimit) {
+		if (weightLimit < 0) {
+			return null;
+		}
+
+		MailItem mail = peek(root, LOWEST_BUCKET, leaves,
+				Math.min(weightLimit, MAX_WEIGHT));
+
+		// Overweight items are only reachable by a limit above MAX_WEIGHT and
+		// their exact weight still has to fit
+		if (weightLimit > MAX_WEIGHT) {
+			for (Entry entry = bucket(OVERWEIGHT); entry != null;
+					entry = entry.next) {
+				if (entry.item.getWeight() <= weightLimit) {
+					mail = moreUrgent(mail, entry.item);
+					break;
+				}
+			}
+		}
+
+		return mail;
+	}
+
+	/**
+	 * Remove and return the most urgent item that satisfy the weight limit.
+	 * @param weightLimit - weight limit which the robot can carry
+	 * @return most urgent mail item, null if there is no such item
+	 */
+	public MailItem poll(int weightLimit) {
+		MailItem mail = peek(weightLimit);
+
+		if (mail != null) {
+			root = remove(root, LOWEST_BUCKET, leaves, toBucket(mail.getWeight()),
+					mail);
+		}
+
+		return mail;
+	}
+
+	/**
+	 * Count the items that satisfy the weight limit.
+	 * @param weightLimit - weight limit which the robot can carry
+	 * @return number of items the robot can carry according to the weight limit
+	 */
+	public int size(int weightLimit) {
+		if (weightLimit < 0) {
+			return 0;
+		}
+
+		int size = size(root, LOWEST_BUCKET, leaves,
+				Math.min(weightLimit, MAX_WEIGHT));
+		if (weightLimit > MAX_WEIGHT) {
+			for (Entry entry = bucket(OVERWEIGHT); entry != null;
+					entry = entry.next) {
+				if (entry.item.getWeight() <= weightLimit) {
+					size++;
+				}
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * @return number of items in the index regardless of their weight
+	 */
+	public int size() {
+		return (root == null) ? 0 : root.count;
+	}
+
+	/**
+	 * Build the path to a bucket with the item added to that bucket.
+	 * @param node - node covering the buckets [low, high), may be null
+	 * @param low - first bucket of the node
+	 * @param high - one after the last bucket of the node
+	 * @param bucket - bucket of the item
+	 * @param mailItem - mail item being added
+	 * @return new node replacing the given node
+	 */
+	private Node add(Node node, int low, int high, int bucket,
+			MailItem mailItem) {
+		if (high - low == 1) {
+			return leaf(insert((node == null) ? null : node.items, mailItem));
+		}
+
+		int middle = (low + high) / 2;
+		Node left = (node == null) ? null : node.left;
+		Node right = (node == null) ? null : node.right;
+		if (bucket < middle) {
+			left = add(left, low, middle, bucket, mailItem);
+		}
+		else {
+			right = add(right, middle, high, bucket, mailItem);
+		}
+
+		return branch(left, right);
+	}
+
+	/**
+	 * Build the path to a bucket with an item removed from that bucket.
+	 * @param node - node covering the buckets [low, high), not null
+	 * @param low - first bucket of the node
+	 * @param high - one after the last bucket of the node
+	 * @param bucket - bucket of the item
+	 * @param mailItem - mail item being removed
+	 * @return new node replacing the given node, null if it became empty
+	 */
+	private Node remove(Node node, int low, int high, int bucket,
+			MailItem mailItem) {
+		if (high - low == 1) {
+			return leaf(remove(node.items, mailItem));
+		}
+
+		int middle = (low + high) / 2;
+		if (bucket < middle) {
+			return branch(remove(node.left, low, middle, bucket, mailItem),
+					node.right);
+		}
+		else {
+			return branch(node.left,
+					remove(node.right, middle, high, bucket, mailItem));
+		}
+	}
+
+	/**
+	 * Find the items of a bucket.
+	 * @param bucket - index of the bucket
+	 * @return bucket list ordered by urgency, null if the bucket is empty
+	 */
+	private Entry bucket(int bucket) {
+		Node node = root;
+		int low = LOWEST_BUCKET;
+		int high = leaves;
+
+		while (node != null && high - low > 1) {
+			int middle = (low + high) / 2;
+			if (bucket < middle) {
+				node = node.left;
+				high = middle;
+			}
+			else {
+				node = node.right;
+				low = middle;
+			}
+		}
+
+		return (node == null) ? null : node.items;
+	}
+
+	/**
+	 * Find the most urgent item in the buckets up to a limit.
+	 * @param node - node covering the buckets [low, high), may be null
+	 * @param low - first bucket of the node
+	 * @param high - one after the last bucket of the node
+	 * @param limit - last bucket included in the search
+	 * @return most urgent item, null if there is no such item
+	 */
+	private MailItem peek(Node node, int low, int high, int limit) {
+		if (node == null || low > limit) {
+			return null;
+		}
+		// The whole node is within the limit
+		if (high - 1 <= limit) {
+			return node.best;
+		}
+
+		int middle = (low + high) / 2;
+		return moreUrgent(peek(node.left, low, middle, limit),
+				peek(node.right, middle, high, limit));
+	}
+
+	/**
+	 * Count the items in the buckets up to a limit.
+	 * @param node - node covering the buckets [low, high), may be null
+	 * @param low - first bucket of the node
+	 * @param high - one after the last bucket of the node
+	 * @param limit - last bucket included in the count
+	 * @return number of items
+	 */
+	private int size(Node node, int low, int high, int limit) {
+		if (node == null || low > limit) {
+			return 0;
+		}
+		if (high - 1 <= limit) {
+			return node.count;
+		}
+
+		int middle = (low + high) / 2;
+		return size(node.left, low, middle, limit) +
+				size(node.right, middle, high, limit);
+	}
+
+	/**
+	 * Copy the bucket list up to the position of the new item, the rest of the
+	 * list is shared. Items of exactly the same weight are few, so the copy is
+	 * short.
+	 * @param items - bucket list ordered by urgency, may be null
+	 * @param mailItem - mail item being added
+	 * @return new bucket list containing the item
+	 */
+	private Entry insert(Entry items, MailItem mailItem) {
+		if (items == null || comparator.compare(mailItem, items.item) < 0) {
+			return new Entry(mailItem, items);
+		}
+
+		return new Entry(items.item, insert(items.next, mailItem));
+	}
+
+	/**
+	 * Copy the bucket list up to the item being removed, the rest of the list
+	 * is shared. Except in the overweight bucket the item is always the head.
+	 * @param items - bucket list containing the item
+	 * @param mailItem - mail item being removed
+	 * @return new bucket list without the item
+	 */
+	private Entry remove(Entry items, MailItem mailItem) {
+		if (items.item == mailItem) {
+			return items.next;
+		}
+
+		return new Entry(items.item, remove(items.next, mailItem));
+	}
+
+	/**
+	 * @param items - bucket list ordered by urgency, may be null
+	 * @return leaf node of the bucket, null if the bucket is empty
+	 */
+	private Node leaf(Entry items) {
+		if (items == null) {
+			return null;
+		}
+
+		int count = 0;
+		for (Entry entry = items; entry != null; entry = entry.next) {
+			count++;
+		}
+
+		return new Node(null, null, items, items.item, count);
+	}
+
+	/**
+	 * @param left - left child, may be null
+	 * @param right - right child, may be null
+	 * @return node over both children, null if both are empty
+	 */
+	private Node branch(Node left, Node right) {
+		if (left == null && right == null) {
+			return null;
+		}
+
+		return new Node(left, right, null,
+				moreUrgent((left == null) ? null : left.best,
+						(right == null) ? null : right.best),
+				((left == null) ? 0 : left.count) +
+				((right == null) ? 0 : right.count));
+	}
+
+	/**
+	 * Choose the more urgent of two items, prefer the first one on a tie so
+	 * that the lighter item is chosen.
+	 * @param item1 - candidate item, may be null
+	 * @param item2 - candidate item, may be null
+	 * @return the more urgent item, null if both are null
+	 */
+	private MailItem moreUrgent(MailItem item1, MailItem item2) {
+		if (item1 == null) {
+			return item2;
+		}
+		if (item2 == null) {
+			return item1;
+		}
+
+		return (comparator.compare(item1, item2) <= 0) ? item1 : item2;
+	}
+
+	/**
+	 * Map the weight of an item to its bucket, heavier items than MAX_WEIGHT
+	 * share the overweight bucket.
+	 * @param weight - weight of the item
+	 * @return index of the bucket
+	 */
+	private int toBucket(int weight) {
+		return Math.min(weight, OVERWEIGHT);
+	}
+
+	/**
+	 * Immutable node of the segment tree, a leaf when it has bucket items.
+	 */
+	private static class Node {
+		private final Node left;
+		private final Node right;
+		private final Entry items; // bucket list of a leaf
+		private final MailItem best; // most urgent item below the node
+		private final int count; // number of items below the node
+
+		private Node(Node left, Node right, Entry items, MailItem best,
+				int count) {
+			this.left = left;
+			this.right = right;
+			this.items = items;
+			this.best = best;
+			this.count = count;
+		}
+	}
+
+	/**
+	 * Immutable element of a bucket list.
+	 */
+	private static class Entry {
+		private final MailItem item;
+		private final Entry next;
+
+		private Entry(MailItem item, Entry next) {
+			this.item = item;
+			this.next = next;
+		}
+	}
+}
@@ -6,7 +6,6 @@
 package strategies;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import automail.MailItem;
 import automail.PriorityMailItem;
@@ -20,10 +19,11 @@ import exceptions.TubeFullException;
  *
  * Algorithm of MailPool:
  * 1. The objective of the mailing pool is to minimise the system scoring
- *    function, hence create an ArrayList which are sorted based on urgency and
- *    priority defined by the WeightComparator (i.e. priority 100 is more
- *    important to deliver first than priority 10 item, hence 100 should be in
- *    the head of ArrayList).
+ *    function, hence keep the items in a MailWeightIndex which orders them
+ *    based on urgency and priority defined by the WeightComparator (i.e.
+ *    priority 100 is more important to deliver first than priority 10 item)
+ *    and by weight, so that the most urgent item a robot can carry is found
+ *    for any carrying capacity without reordering the rest of the pool.
  * 2. The second consideration is regarding adding item from mail pool to
  *    storage tube, we want to add as many item as possible to the storage tube
  *    respecting the condition that the storage tube limit is 4 items.
@@ -31,20 +31,23 @@ import exceptions.TubeFullException;
  *    manipulate the storage tube (stack) such that the robot will deliver item
  *    sequentially from lower level item to higher level item, so that the robot
  *    doesn't go back and forth.
+ * 4. The weight index shares its structure between versions, so the pool can
+ *    hand out a snapshot in O(1) which the robot uses to try out a recall
+ *    decision without touching the real pool.
  */
 public class MyMailPool implements IMailPool{
 	/** Instance Variables */
-	/* The data structure chosen is array list that are sorted based on urgency
-	 * defined in the WeightComparator class. The head of the array list will be
-	 * the higher priority that needed to be delivered first (i.e. priority 100
-	 * first before priority 10)
+	/* The data structure chosen is a weight index that returns the most urgent
+	 * item, defined in the WeightComparator class, at or below a weight limit
+	 * (i.e. priority 100 first before priority 10)
 	 */
-	private ArrayList<MailItem> nonPriorityPool;
-	private ArrayList<MailItem> priorityPool;
+	private MailWeightIndex nonPriorityPool;
+	private MailWeightIndex priorityPool;
 	private WeightComparator comparator;
+	private StrategyParameters parameters; // tunable decisions of the pool
+	private ArrayList<MailItem> lastFill; // items of last tube in pop order
 
 	/** Constant */
-	private static final int MAX_TAKE = 4;
 	public static final double EXPONENT = 1.1;
 	public static final int POSITIVE = 1;
 	public static final int NEUTRAL = 0;
@@ -54,15 +57,56 @@ public class MyMailPool implements IMailPool{
 	public static final int HIGH = 100;
 
 	/**
-	 * Constructor for MyMailPool which are used to instantiate appropriate Array
-	 * list.
+	 * Constructor for MyMailPool which are used to instantiate appropriate
+	 * weight index, the parameters are read from the system properties.
 	 */
 	public MyMailPool(){
+		this(StrategyParameters.fromSystemProperties());
+	}
+
+	/**
+	 * Constructor for MyMailPool with explicit parameters.
+	 * @param parameters - tunable decisions such as how many items to take
+	 */
+	public MyMailPool(StrategyParameters parameters){
+		this.parameters = parameters;
+
 		// Instantiate the compare object used to determine item who has highest
 		// priority, Comparator class are described below
-		nonPriorityPool = new ArrayList<MailItem>();
-		priorityPool = new ArrayList<MailItem>();
 		comparator = new WeightComparator();
+		nonPriorityPool = new MailWeightIndex(comparator);
+		priorityPool = new MailWeightIndex(comparator);
+		lastFill = new ArrayList<MailItem>();
+	}
+
+	/**
+	 * Constructor used by snapshot, shares the weight index of another pool.
+	 * @param other - pool being copied
+	 */
+	private MyMailPool(MyMailPool other){
+		this.parameters = other.parameters;
+		comparator = new WeightComparator();
+		nonPriorityPool = other.nonPriorityPool.snapshot();
+		priorityPool = other.priorityPool.snapshot();
+		lastFill = new ArrayList<MailItem>(other.lastFill);
+	}
+
+	/**
+	 * Take a snapshot of the pool in O(1) regardless of the number of items,
+	 * the snapshot can be filled from and added to without changing this pool.
+	 * @return independent pool with the same items and parameters
+	 */
+	public MyMailPool snapshot(){
+		return new MyMailPool(this);
+	}
+
+	/**
+	 * Get the items put in the storage tube by the last fill, used by the robot
+	 * to know its route since the first item leaves the tube straight away.
+	 * @return items of the last filled tube in delivery order
+	 */
+	public ArrayList<MailItem> getLastFill(){
+		return new ArrayList<MailItem>(lastFill);
 	}
 
 	/**
@@ -72,141 +116,80 @@ public class MyMailPool implements IMailPool{
 	 */
 	public void addToPool(MailItem mailItem) {
 		// Check types of item being added and put to appropriate pool
+		// The index keeps the item ordered by urgency, no need to sort
 		if(mailItem instanceof PriorityMailItem){
 			priorityPool.add(mailItem);
-
-			/* Reverse sort based on urgency to make sure higher priority item
-			 * delivered first
-			 */
-			Collections.sort(priorityPool, comparator);
 		}
 		else{
-			// Reverse sort for the same reason as above
 			nonPriorityPool.add(mailItem);
-			Collections.sort(nonPriorityPool, comparator);
 		}
 	}
 
 	/**
-	 * Get the pool size of the non priority priority queue with elements that
-	 * satisfy the current weight limit
+	 * Get the pool size of the non priority pool with elements that satisfy
+	 * the current weight limit
 	 * @param weightLimit - weight limit which the robot can carry
 	 * @return size of the non priority pool which the robot can carry according
 	 * to the weight limit
 	 */
 	private int getNonPriorityPoolSize(int weightLimit) {
-		/* Iterate through the non priority list and calculate how many items that
-		 * can be satisfied
-		 */
-		int size = 0;
-		for (MailItem mail:nonPriorityPool) {
-			if (mail.getWeight() <= weightLimit) {
-				size ++;
-			}
-		}
-
-		return size;
+		return nonPriorityPool.size(weightLimit);
 	}
 
 	/**
-	 * Get the pool size of the priority priority queue with elements that
-	 * satisfy the current weight limit
+	 * Get the pool size of the priority pool with elements that satisfy the
+	 * current weight limit
 	 * @param weightLimit - weight limit which the robot can carry
 	 * @return size of the priority pool which the robot can carry according to
 	 * the weight limit
 	 */
 	private int getPriorityPoolSize(int weightLimit){
-		int size = 0;
-		for (MailItem mail:priorityPool) {
-			if (mail.getWeight() <= weightLimit) {
-				size++;
-			}
-		}
-
-		return size;
+		return priorityPool.size(weightLimit);
 	}
 
 	/**
-	 * Used to get a non priority mail from the non priority pool array list,
-	 * only get item that the robot can take
+	 * Used to get a non priority mail from the non priority pool, only get item
+	 * that the robot can take. Items that are too heavy stay untouched in the
+	 * weight index.
 	 * @param weightLimit
-	 * @return MailItem instance that the robot can take from non priority pool
+	 * @return MailItem instance that the robot can take from non priority pool,
+	 * null if there is none
 	 */
 	private MailItem getNonPriorityMail(int weightLimit){
-		ArrayList<MailItem> mails = new ArrayList<MailItem>();
-		MailItem mail;
-
-		if(getNonPriorityPoolSize(weightLimit) > 0){
-			/* Only take item that the robot can handle based on weight if the robot
-			 * cannot handle then put on the array list
-			 * so that later can be put back to the mail pool.
-			 */
-			mail = nonPriorityPool.remove(HEAD); // take the most urgent item
-			while (mail.getWeight() > weightLimit) {
-				mails.add(mail);
-				mail = nonPriorityPool.remove(HEAD);
-			}
-
-			// Put back all mail on the mails back to the pool
-			for (MailItem m:mails) {
-				nonPriorityPool.add(m);
-			}
-
-			// Sort back non priority pool to satisfy the sorting criteria
-			Collections.sort(nonPriorityPool, comparator);
-
-			return mail; // Return the mail that satisfy the weight criterion
-		}
-		else{
-			return null;
-		}
+		return nonPriorityPool.poll(weightLimit);
 	}
 
 	/**
-	 * Used to get a priority mail from the priority pool array list, only get
-	 * item that the robot can take.
+	 * Used to get a priority mail from the priority pool, only get item that
+	 * the robot can take.
 	 * @param weightLimit
-	 * @return MailItem instance that the robot can take from the priority pool
+	 * @return MailItem instance that the robot can take from the priority pool,
+	 * null if there is none
 	 */
 	private MailItem getHighestPriorityMail(int weightLimit){
-		ArrayList<MailItem> mails = new ArrayList<MailItem>();
-		MailItem mail;
-
-		if(getPriorityPoolSize(weightLimit) > 0){
-			/* Only take item that the robot can handle based on weight if the robot
-			 * cannot handle then put on the array list
-			 * so that later can be put back to the mailpool.
-			 */
-			mail = priorityPool.remove(HEAD);
-			while (mail.getWeight() > weightLimit) {
-				mails.add(mail);
-				mail = priorityPool.remove(HEAD);
-			}
-
-			// Put back all mail on the mails back to the priority queue
-			for (MailItem m:mails) {
-				priorityPool.add(m);
-			}
-
-			// Sort back priority pool
-			Collections.sort(priorityPool, comparator);
-
-			return mail; // Return the mail that satisfy the weight criterion
-		}
-		else{
-			return null;
-		}
+		return priorityPool.poll(weightLimit);
 	}
 
 	/**
-	 * Fill the storage tube of the robot by filling at most 4 non 
-	 * priority item.
+	 * Fill the storage tube of the robot by filling at most maxTake (4 by
+	 * default) items.
 	 * @param tube - Storage tube of the robot
 	 * @param strong - Indicate strong or weak robot
 	 */
 	@Override
 	public void fillStorageTube(StorageTube tube, boolean strong) {
-		int max = strong ? Integer.MAX_VALUE : MyRobotBehaviour.WEAK_CARRY;
+		fillStorageTube(tube, strong ? Integer.MAX_VALUE :
+			MyRobotBehaviour.WEAK_CARRY);
+	}
+
+	/**
+	 * Fill the storage tube of a robot with an arbitrary carrying capacity by
+	 * filling at most maxTake items it can carry.
+	 * @param tube - Storage tube of the robot
+	 * @param max - Maximum weight in grams the robot can carry
+	 */
+	public void fillStorageTube(StorageTube tube, int max) {
+		int maxTake = parameters.getMaxTake();
 		MailItem mail;
 
 		// Get as many as possible priority item
@@ -219,17 +202,24 @@ public class MyMailPool implements IMailPool{
 			// Check for a top priority item
 			if (getPriorityPoolSize(max) > 0) {
 				// Get as many priority items as available
-				while (tube.getSize() < MAX_TAKE && getPriorityPoolSize(max) > 0) {
+				while (tube.getSize() < maxTake && getPriorityPoolSize(max) > 0) {
 					// Add priority mail item and deliver directly
 					mail = getHighestPriorityMail(max);
 					tube.addItem(mail);
 				}
+				// Optionally use the free space for non priority item, these
+				// are delivered after the priority item
+				while (parameters.isMixPriority() && tube.getSize() < maxTake
+						&& getNonPriorityPoolSize(max) > 0) {
+					mail = getNonPriorityMail(max);
+					tube.addItem(mail);
+				}
 				// sort storage tube to deliver 100 priority first
 				sortStorageTubePriority(tube); 
 			}
 			else {
 				// Get as many nonpriority items as available or as fit
-				while(tube.getSize() < MAX_TAKE && getNonPriorityPoolSize(max) > 0) {
+				while(tube.getSize() < maxTake && getNonPriorityPoolSize(max) > 0) {
 					mail = getNonPriorityMail(max);
 					tube.addItem(mail);
 				}
@@ -240,6 +230,12 @@ public class MyMailPool implements IMailPool{
 		catch(TubeFullException e) {
 			e.printStackTrace();
 		}
+
+		// Remember the delivery order, top of the stack is delivered first
+		lastFill.clear();
+		for (MailItem m:tube.tube) {
+			lastFill.add(HEAD, m);
+		}
 	}
 
 	/**
@@ -276,7 +272,8 @@ public class MyMailPool implements IMailPool{
 	
 	/**
 	 * Sort the stack, so that the robot will deliver it more efficiently,
-	 * delivering first item with higher priority, then sort by floor.
+	 * delivering first item with higher priority, then sort by floor. Non
+	 * priority item mixed in the tube are delivered last.
 	 * @param tube - The tub to be sorted based on floor level
 	 */
 	public void sortStorageTubePriority(StorageTube tube) {
@@ -285,6 +282,7 @@ public class MyMailPool implements IMailPool{
 		// Used to help sort based on priority
 		ArrayList<MailItem> highPriorityMails = new ArrayList<MailItem>();
 		ArrayList<MailItem> lowPriorityMails = new ArrayList<MailItem>();
+		ArrayList<MailItem> nonPriorityMails = new ArrayList<MailItem>();
 		MailItem mail;
 
 		// Pop every item on the storage tube and reorder based on floor ordering,
@@ -299,7 +297,10 @@ public class MyMailPool implements IMailPool{
 		while (!mails.isEmpty()) {
 			// Get the highest floor and put that on high or low priority mails
 			mail = highestFloor(mails);
-			if (((PriorityMailItem) mail).getPriorityLevel() == LOW) {
+			if (!(mail instanceof PriorityMailItem)) {
+				nonPriorityMails.add(mail);
+			}
+			else if (((PriorityMailItem) mail).getPriorityLevel() == LOW) {
 				lowPriorityMails.add(mail);
 			}
 			else {
@@ -310,7 +311,16 @@ public class MyMailPool implements IMailPool{
 			mails.remove(mail);
 		}
 		
-		// Now put everything back to the storage tube starting from low priority
+		// Now put everything back to the storage tube starting from non priority
+		for (MailItem nonMail:nonPriorityMails) {
+			try {
+				tube.addItem(nonMail);
+			} catch (TubeFullException e) {
+				e.printStackTrace();
+			}
+		}
+
+		// Then the low priority
 		for (MailItem lowMail:lowPriorityMails) {
 			try {
 				tube.addItem(lowMail);
@@ -384,22 +394,18 @@ public class MyMailPool implements IMailPool{
 			}
 			/* The only option left is now between the same priority or between non
 			 * prority item.
-			 * We want to prefer deliver lower level item first since it is faster */
+			 * By default we prefer deliver lower level item first since it is
+			 * faster, the floorFirst parameter can prefer earlier arrival instead */
 			else {
-				int destination1 = item1.getDestFloor();
-				int destination2 = item2.getDestFloor();
-				// Deliver lower level item first since it is faster,
-				// if it has the same priority level
-				if (destination1 != destination2) {
-					return (destination1 - destination2);
+				int floorOrder = item1.getDestFloor() - item2.getDestFloor();
+				int arrivalOrder = item1.getArrivalTime() - item2.getArrivalTime();
+
+				// Break the tie of the preferred ordering with the other one
+				if (parameters.isFloorFirst()) {
+					return (floorOrder != NEUTRAL) ? floorOrder : arrivalOrder;
 				}
-				// Now if the destination is the same,
-				// deliver most urgent item first based on arrival time
 				else {
-					int arrivalTime1 = item1.getArrivalTime();
-					int arrivalTime2 = item2.getArrivalTime();
-
-					return (arrivalTime1 - arrivalTime2);
+					return (arrivalOrder != NEUTRAL) ? arrivalOrder : floorOrder;
 				}
 			}
 		}
@@ -4,6 +4,9 @@
  * Date: 15/03/2018
  */
 package strategies;
+import java.util.ArrayList;
+import automail.Building;
+import automail.Clock;
 import automail.MailItem;
 import automail.PriorityMailItem;
 import automail.StorageTube;
@@ -15,13 +18,20 @@ import automail.StorageTube;
  * 1. Only notify the robot that can carry the weight
  *    (strong and sometimes weak) to go back
  * 2. Only go back if priority item on the tube is less than the priority item
- *    that are arrived.
+ *    that are arrived. The recall parameter can instead never go back, go
+ *    back for any priority item or go back when the RecallEvaluator finds
+ *    that returning and refilling beats continuing on a pool snapshot.
  */
 public class MyRobotBehaviour implements IRobotBehaviour {
 	/** Instance Variables */
 	private boolean newPriority; // Notify priority item has arrived
-	private boolean strong; // Used to identify which type of robot
+	private int weightLimit; // Maximum weight the robot can carry
 	private int newPriorityLevel; // compare the new priority level with old
+	private StrategyParameters parameters; // tunable decisions of the robot
+	private MyMailPool mailPool; // pool to take snapshots of, may be null
+	private RecallEvaluator evaluator; // simulates recall decisions
+	private ArrayList<MailItem> route; // items of this trip in delivery order
+	private int floor; // floor the robot is at
 
 	/** Constant */
 	public static final int WEAK_CARRY = 2000;
@@ -31,7 +41,51 @@ public class MyRobotBehaviour implements IRobotBehaviour {
 	 * @param strong true if the robot is strong, false if the robot is weak
 	 */
 	public MyRobotBehaviour(boolean strong) {
-		this.strong = strong;
+		this(strong ? Integer.MAX_VALUE : WEAK_CARRY);
+	}
+
+	/**
+	 * Constructor for MyRobotBehaviour which can look ahead in the mail pool
+	 * @param strong true if the robot is strong, false if the robot is weak
+	 * @param mailPool the mail pool, used only if it is a MyMailPool
+	 */
+	public MyRobotBehaviour(boolean strong, IMailPool mailPool) {
+		this(strong ? Integer.MAX_VALUE : WEAK_CARRY,
+				StrategyParameters.fromSystemProperties(),
+				(mailPool instanceof MyMailPool) ? (MyMailPool) mailPool : null);
+	}
+
+	/**
+	 * Constructor for MyRobotBehaviour of a robot with arbitrary capacity
+	 * @param weightLimit maximum weight in grams the robot can carry
+	 */
+	public MyRobotBehaviour(int weightLimit) {
+		this(weightLimit, StrategyParameters.fromSystemProperties());
+	}
+
+	/**
+	 * Constructor for MyRobotBehaviour with explicit parameters
+	 * @param weightLimit maximum weight in grams the robot can carry
+	 * @param parameters tunable decisions such as when to recall
+	 */
+	public MyRobotBehaviour(int weightLimit, StrategyParameters parameters) {
+		this(weightLimit, parameters, null);
+	}
+
+	/**
+	 * Constructor for MyRobotBehaviour with explicit parameters and pool
+	 * @param weightLimit maximum weight in grams the robot can carry
+	 * @param parameters tunable decisions such as when to recall
+	 * @param mailPool pool used by the LOOKAHEAD recall, may be null
+	 */
+	public MyRobotBehaviour(int weightLimit, StrategyParameters parameters,
+			MyMailPool mailPool) {
+		this.weightLimit = weightLimit;
+		this.parameters = parameters;
+		this.mailPool = mailPool;
+		evaluator = new RecallEvaluator(weightLimit);
+		route = new ArrayList<MailItem>();
+		floor = Building.MAILROOM_LOCATION;
 		newPriority = false;
 	}
 
@@ -40,6 +94,12 @@ public class MyRobotBehaviour implements IRobotBehaviour {
 	 */
 	public void startDelivery() {
 		newPriority = false; // toggle off
+
+		// The tube was just filled by the pool and the robot is in the mail room
+		if (mailPool != null) {
+			route = mailPool.getLastFill();
+		}
+		floor = Building.MAILROOM_LOCATION;
 	}
 
 	/**
@@ -50,13 +110,8 @@ public class MyRobotBehaviour implements IRobotBehaviour {
 	 */
 	@Override
     public void priorityArrival(int priority, int weight) {
-    	/* Only notify strong robot and weak robot if the weak robot can carry
-		 * the weight */
-    	if (strong == true) {
-    		newPriority = true;
-    		this.newPriorityLevel = priority;
-    	}
-    	else if ((strong == false) && (weight <= WEAK_CARRY)) {
+    	/* Only notify the robot if it can carry the weight */
+    	if (weight <= weightLimit) {
     		newPriority = true;
     		this.newPriorityLevel = priority;
     	}
@@ -73,16 +128,76 @@ public class MyRobotBehaviour implements IRobotBehaviour {
 	 */
 	@Override
 	public boolean returnToMailRoom(StorageTube tube) {
+		boolean delivering = followRoute(tube);
+
 		if (tube.isEmpty()) {
 			return true; // Empty tube means we are returning anyway
+		} else if (parameters.getRecall() ==
+				StrategyParameters.RecallPolicy.NEVER) {
+			return false;
+		} else if (parameters.getRecall() ==
+				StrategyParameters.RecallPolicy.ANY_PRIORITY) {
+			return newPriority;
+		} else if (parameters.getRecall() ==
+				StrategyParameters.RecallPolicy.LOOKAHEAD && mailPool != null) {
+			// Only the decision taken while delivering is used by the robot
+			if (!newPriority || !delivering) {
+				return false;
+			}
+
+			// Items left in the tube, top of the stack is delivered first
+			ArrayList<MailItem> carried = new ArrayList<MailItem>();
+			for (MailItem mail:tube.tube) {
+				carried.add(0, mail);
+			}
+			int decision = evaluator.decide(mailPool, carried, floor,
+					Clock.Time());
+			if (decision != RecallEvaluator.UNDECIDED) {
+				return (decision == RecallEvaluator.RETURN);
+			}
+
+			// The safety cutoff stopped the simulation, compare priorities
+			return higherPriorityArrived(tube);
 		} else {
-			// Return if we don't have a priority item and a new one came in
-			MailItem item = tube.peek();
-			Boolean priority = (item instanceof PriorityMailItem);
-			return ((!priority && newPriority) ||
-					(priority && newPriority &&
-					(newPriorityLevel > ((PriorityMailItem)item).getPriorityLevel())));
+			return higherPriorityArrived(tube);
 		}
 	}
 
+	/**
+	 * Return if we don't have a priority item and a new one came in, or the
+	 * new one has higher priority than the item in front of the tube.
+	 * @param tube - the storage tube that the robot carry, not empty
+	 * @return true if the robot should return, false otherwise
+	 */
+	private boolean higherPriorityArrived(StorageTube tube) {
+		MailItem item = tube.peek();
+		Boolean priority = (item instanceof PriorityMailItem);
+		return ((!priority && newPriority) ||
+				(priority && newPriority &&
+				(newPriorityLevel > ((PriorityMailItem)item).getPriorityLevel())));
+	}
+
+	/**
+	 * Follow the robot along its route. The robot asks returnToMailRoom every
+	 * step, then delivers if it is at the floor of the current item or moves
+	 * one floor towards it otherwise.
+	 * @param tube - the storage tube that the robot carry
+	 * @return true if the robot delivers an item at this step
+	 */
+	private boolean followRoute(StorageTube tube) {
+		// The current item has already left the tube
+		int current = route.size() - tube.getSize() - 1;
+		if (current < 0 || current >= route.size()) {
+			return false; // route is not known
+		}
+
+		int destination = route.get(current).getDestFloor();
+		if (floor == destination) {
+			return true;
+		}
+		floor += (destination > floor) ? 1 : -1;
+
+		return false;
+	}
+
 }
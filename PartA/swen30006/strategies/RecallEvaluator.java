@@ -0,0 +1,215 @@
+/**
+ * Author: Maleakhi Agung Wijaya
+ * Student Number: 784091
+ * Date: 15/03/2018
+ */
+package strategies;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import automail.Building;
+import automail.MailItem;
+import automail.PriorityMailItem;
+import automail.StorageTube;
+
+/**
+ * Decides whether a robot should return to the mail room by trying out both
+ * options on snapshots of the mail pool.
+ *
+ * Algorithm of the evaluator:
+ * 1. "Continue" delivers the items still in the tube, then keeps returning
+ *    and filling the tube from the pool. "Return" puts the items in the tube
+ *    back to the pool, goes back straight away and keeps filling the tube
+ *    from the pool. Both use the real filling of MyMailPool on their own
+ *    snapshot, so the real pool is never touched.
+ * 2. Each option is simulated trip by trip until the pool is empty for the
+ *    robot or the trip budget is spent. The budget counts simulated trips
+ *    rather than wall clock time, so the same seed always gives the same
+ *    decision however busy the machine is.
+ * 3. Both options are scored with the system scoring function on the same
+ *    items up to the same time (the earliest time an unfinished option
+ *    reached), items not delivered by then are scored at that time. The robot
+ *    returns only when returning gives the strictly lower score.
+ * 4. A generous wall clock limit only guards against a runaway simulation,
+ *    when it is hit no decision is made and the robot falls back to its
+ *    priority comparison.
+ *
+ * The other robot and mail arriving in the future are not known, hence they
+ * are left out of the simulation.
+ */
+public class RecallEvaluator {
+	/** Instance Variables */
+	private int weightLimit; // maximum weight the robot can carry
+	private int maxTrips; // trips simulated per option
+
+	/** Constant */
+	public static final int MAX_TRIPS = 8;
+	/* A decision takes a few milliseconds even without the JIT, the cutoff is
+	 * far above that so a busy machine never reaches it
+	 */
+	public static final long SAFETY_TIMEOUT = 10000000000L; // 10 s
+	public static final int RETURN = 1;
+	public static final int UNDECIDED = 0;
+	public static final int CONTINUE = -1;
+	/* Steps spent in the mail room, the robot arrives, waits and fills its
+	 * tube in the same step
+	 */
+	public static final int REFILL_STEPS = 1;
+	public static final int DELIVERY_STEPS = 1;
+
+	/**
+	 * Constructor for RecallEvaluator with the default trip budget
+	 * @param weightLimit maximum weight in grams the robot can carry
+	 */
+	public RecallEvaluator(int weightLimit) {
+		this(weightLimit, MAX_TRIPS);
+	}
+
+	/**
+	 * Constructor for RecallEvaluator
+	 * @param weightLimit maximum weight in grams the robot can carry
+	 * @param maxTrips trips from the mail room simulated for each option
+	 */
+	public RecallEvaluator(int weightLimit, int maxTrips) {
+		this.weightLimit = weightLimit;
+		this.maxTrips = maxTrips;
+	}
+
+	/**
+	 * Decide if returning now gives a lower score than continuing.
+	 * @param pool - the real mail pool, only snapshots of it are used
+	 * @param carried - items left in the tube in delivery order
+	 * @param floor - floor the robot is delivering at
+	 * @param now - current time
+	 * @return RETURN if the robot should return to the mail room, CONTINUE
+	 * if it should keep delivering, UNDECIDED if the safety cutoff was hit
+	 */
+	public int decide(MyMailPool pool, ArrayList<MailItem> carried,
+			int floor, int now) {
+		long deadline = System.nanoTime() + SAFETY_TIMEOUT;
+		Plan stay = simulate(pool.snapshot(), carried, floor, now, false,
+				deadline);
+		Plan back = simulate(pool.snapshot(), carried, floor, now, true,
+				deadline);
+		if (stay.timedOut || back.timedOut) {
+			return UNDECIDED;
+		}
+
+		// Compare both options on the same items up to the same time
+		LinkedHashSet<MailItem> items = new LinkedHashSet<MailItem>(carried);
+		items.addAll(stay.delivered.keySet());
+		items.addAll(back.delivered.keySet());
+
+		int horizon = Integer.MAX_VALUE;
+		if (!stay.complete) {
+			horizon = Math.min(horizon, stay.time);
+		}
+		if (!back.complete) {
+			horizon = Math.min(horizon, back.time);
+		}
+
+		return (score(back, items, horizon) < score(stay, items, horizon)) ?
+				RETURN : CONTINUE;
+	}
+
+	/**
+	 * Simulate one option on a snapshot of the pool.
+	 * @param pool - snapshot of the pool, changed by the simulation
+	 * @param carried - items left in the tube in delivery order
+	 * @param floor - floor the robot is delivering at
+	 * @param now - current time
+	 * @param goBack - true to return straight away, false to continue
+	 * @param deadline - nanoTime after which the simulation is abandoned
+	 * @return delivery time of every simulated item
+	 */
+	private Plan simulate(MyMailPool pool, ArrayList<MailItem> carried,
+			int floor, int now, boolean goBack, long deadline) {
+		Plan plan = new Plan();
+		ArrayList<MailItem> load = new ArrayList<MailItem>(carried);
+		int time = now;
+		int trips = 0;
+
+		// Returning puts the carried items back to the pool
+		if (goBack) {
+			for (MailItem mail:load) {
+				pool.addToPool(mail);
+			}
+			load.clear();
+		}
+
+		while (true) {
+			// Deliver the load, moving one floor per step and taking one more
+			// step to deliver once at the floor, as automail.Robot does
+			for (MailItem mail:load) {
+				time += Math.abs(mail.getDestFloor() - floor) + DELIVERY_STEPS;
+				floor = mail.getDestFloor();
+				plan.delivered.put(mail, time);
+			}
+
+			if (trips >= maxTrips) {
+				break;
+			}
+			if (System.nanoTime() > deadline) {
+				plan.timedOut = true;
+				break;
+			}
+
+			// Go back and fill the tube the same way the real pool does
+			StorageTube tube = new StorageTube();
+			pool.fillStorageTube(tube, weightLimit);
+			if (tube.isEmpty()) {
+				plan.complete = true;
+				break;
+			}
+			time += (floor - Building.MAILROOM_LOCATION) + REFILL_STEPS;
+			floor = Building.MAILROOM_LOCATION;
+			load = pool.getLastFill();
+			trips++;
+		}
+		plan.time = time;
+
+		return plan;
+	}
+
+	/**
+	 * Score an option with the system scoring function.
+	 * @param plan - simulated option
+	 * @param items - items both options are scored on
+	 * @param horizon - time after which every item counts as delivered
+	 * @return score of the option, lower is better
+	 */
+	private double score(Plan plan, LinkedHashSet<MailItem> items, int horizon) {
+		double score = 0;
+
+		for (MailItem mail:items) {
+			Integer delivered = plan.delivered.get(mail);
+			int time = (delivered == null) ? horizon :
+				Math.min(delivered, horizon);
+			int priority = (mail instanceof PriorityMailItem) ?
+					((PriorityMailItem) mail).getPriorityLevel() : 0;
+
+			score += Math.pow(Math.max(0, time - mail.getArrivalTime()),
+					MyMailPool.EXPONENT) * (1 + Math.sqrt(priority));
+		}
+
+		return score;
+	}
+
+	/**
+	 * Result of simulating one option.
+	 */
+	private static class Plan {
+		/** Instance Variables */
+		private LinkedHashMap<MailItem, Integer> delivered; // delivery times
+		private int time; // time of the last simulated delivery
+		private boolean complete; // true if every item was delivered
+		private boolean timedOut; // true if the safety cutoff was hit
+
+		private Plan() {
+			delivered = new LinkedHashMap<MailItem, Integer>();
+			complete = false;
+			timedOut = false;
+		}
+	}
+}
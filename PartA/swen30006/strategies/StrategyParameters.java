@@ -0,0 +1,149 @@
+/**
+ * Author: Maleakhi Agung Wijaya
+ * Student Number: 784091
+ * Date: 15/03/2018
+ */
+package strategies;
+
+import java.util.ArrayList;
+
+/**
+ * Decisions of MyMailPool and MyRobotBehaviour that depend on the building
+ * and are therefore tuned rather than fixed.
+ *
+ * The simulation creates the strategies itself through Automail, so the
+ * parameters are read from system properties (i.e. -Dautomail.maxTake=3).
+ * A property that is not set keeps its default, hence running the simulation
+ * without any property uses the default strategies.
+ */
+public class StrategyParameters {
+	/** Recall policies of the robot after a priority item arrived */
+	public enum RecallPolicy {
+		NEVER, // keep delivering the tube
+		HIGHER_PRIORITY, // return if the new item beats the item in front
+		ANY_PRIORITY, // return whenever a priority item arrived
+		LOOKAHEAD // return if a simulation of the pool says it pays off
+	}
+
+	/** Instance Variables */
+	private int maxTake; // maximum items put in the tube
+	private boolean mixPriority; // top up priority tube with non priority
+	private boolean floorFirst; // order by floor before arrival time
+	private RecallPolicy recall; // when the robot returns to the mail room
+
+	/** Constant */
+	public static final String PREFIX = "automail.";
+	public static final String MAX_TAKE = PREFIX + "maxTake";
+	public static final String MIX_PRIORITY = PREFIX + "mixPriority";
+	public static final String FLOOR_FIRST = PREFIX + "floorFirst";
+	public static final String RECALL = PREFIX + "recall";
+	public static final int MIN_TAKE = 1;
+	public static final int TUBE_CAPACITY = 4;
+
+	/**
+	 * Constructor for StrategyParameters with the default strategies.
+	 */
+	public StrategyParameters() {
+		this(TUBE_CAPACITY, false, true, RecallPolicy.HIGHER_PRIORITY);
+	}
+
+	/**
+	 * Constructor for StrategyParameters
+	 * @param maxTake maximum number of items put in the tube
+	 * @param mixPriority true to fill the rest of a priority tube with non
+	 * priority items
+	 * @param floorFirst true to prefer lower floor over earlier arrival
+	 * @param recall when the robot returns to the mail room
+	 */
+	public StrategyParameters(int maxTake, boolean mixPriority,
+			boolean floorFirst, RecallPolicy recall) {
+		if (maxTake < MIN_TAKE || maxTake > TUBE_CAPACITY) {
+			throw new IllegalArgumentException("maxTake must be between " +
+					MIN_TAKE + " and " + TUBE_CAPACITY + ": " + maxTake);
+		}
+		this.maxTake = maxTake;
+		this.mixPriority = mixPriority;
+		this.floorFirst = floorFirst;
+		this.recall = recall;
+	}
+
+	/**
+	 * Read the parameters from the system properties, missing properties keep
+	 * their default value.
+	 * @return parameters used by the current simulation
+	 */
+	public static StrategyParameters fromSystemProperties() {
+		StrategyParameters defaults = new StrategyParameters();
+
+		String maxTake = System.getProperty(MAX_TAKE);
+		String mixPriority = System.getProperty(MIX_PRIORITY);
+		String floorFirst = System.getProperty(FLOOR_FIRST);
+		String recall = System.getProperty(RECALL);
+
+		return new StrategyParameters(
+				maxTake == null ? defaults.maxTake : Integer.parseInt(maxTake),
+				mixPriority == null ? defaults.mixPriority :
+					Boolean.parseBoolean(mixPriority),
+				floorFirst == null ? defaults.floorFirst :
+					Boolean.parseBoolean(floorFirst),
+				recall == null ? defaults.recall : RecallPolicy.valueOf(recall));
+	}
+
+	/**
+	 * Enumerate every combination of the parameters, used by the tuner as its
+	 * search space.
+	 * @return all possible parameter sets
+	 */
+	public static ArrayList<StrategyParameters> space() {
+		ArrayList<StrategyParameters> space = new ArrayList<StrategyParameters>();
+		boolean[] choices = {false, true};
+
+		for (int maxTake = MIN_TAKE; maxTake <= TUBE_CAPACITY; maxTake++) {
+			for (boolean mixPriority:choices) {
+				for (boolean floorFirst:choices) {
+					for (RecallPolicy recall:RecallPolicy.values()) {
+						space.add(new StrategyParameters(maxTake, mixPriority,
+								floorFirst, recall));
+					}
+				}
+			}
+		}
+
+		return space;
+	}
+
+	/**
+	 * @return the parameters as JVM arguments for a simulation process
+	 */
+	public ArrayList<String> toArguments() {
+		ArrayList<String> arguments = new ArrayList<String>();
+
+		arguments.add("-D" + MAX_TAKE + "=" + maxTake);
+		arguments.add("-D" + MIX_PRIORITY + "=" + mixPriority);
+		arguments.add("-D" + FLOOR_FIRST + "=" + floorFirst);
+		arguments.add("-D" + RECALL + "=" + recall);
+
+		return arguments;
+	}
+
+	public int getMaxTake() {
+		return maxTake;
+	}
+
+	public boolean isMixPriority() {
+		return mixPriority;
+	}
+
+	public boolean isFloorFirst() {
+		return floorFirst;
+	}
+
+	public RecallPolicy getRecall() {
+		return recall;
+	}
+
+	@Override
+	public String toString() {
+		return String.join(" ", toArguments());
+	}
+}
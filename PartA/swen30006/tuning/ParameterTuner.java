@@ -0,0 +1,400 @@
+/**
+ * Author: Maleakhi Agung Wijaya
+ * Student Number: 784091
+ * Date: 15/03/2018
+ */
+package tuning;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import strategies.StrategyParameters;
+
+/**
+ * Searches the StrategyParameters space for the parameters giving the lowest
+ * final score on each building profile.
+ *
+ * Algorithm of the tuner (successive halving):
+ * 1. Take the default parameters plus randomly chosen candidates from the
+ *    parameter space.
+ * 2. Run every candidate on the same simulation seeds so that candidates are
+ *    compared on exactly the same mail, then keep the better half.
+ * 3. Double the number of seeds and repeat with the survivors until a single
+ *    candidate is left, so most of the simulations are spent on the
+ *    promising candidates.
+ * 4. The seeds used for halving picked the winner, so its score on them is
+ *    too optimistic. The reported score and confidence interval come from
+ *    fresh seeds after those.
+ *
+ * A simulation that fails or times out has no score. It is counted as a
+ * failed run, a candidate with failed runs ranks behind every candidate
+ * without, and the score is computed from the successful runs only.
+ *
+ * The simulation keeps its clock and delivered mail in static fields, hence
+ * every simulation runs in its own JVM and the runs are spread over all
+ * cores with a thread pool. A building profile is a simulation jar, the
+ * default profile is classes/robot.jar.
+ *
+ * Usage: java -cp bin:classes/robot.jar tuning.ParameterTuner
+ *        [-candidates n] [-seeds n] [-threads n] [-random n] [name=jar ...]
+ */
+public class ParameterTuner {
+	/** Instance Variables */
+	private int candidates; // number of candidates in the first round
+	private int initialSeeds; // seeds per candidate in the first round
+	private Random random; // used to sample the parameter space
+	private ExecutorService executor; // runs the simulations in parallel
+
+	/** Constant */
+	public static final String DEFAULT_PROFILE = "default=classes/robot.jar";
+	public static final String SIMULATION = "automail.Simulation";
+	public static final String SCORE = "Final Score:";
+	public static final int DEFAULT_CANDIDATES = 16;
+	public static final int DEFAULT_SEEDS = 4;
+	public static final int FIRST_SEED = 1;
+	public static final long TIMEOUT_SECONDS = 60;
+	/* Two sided 95% critical values of Student's t distribution indexed by
+	 * degrees of freedom, larger samples use the normal distribution
+	 */
+	private static final double[] T_CRITICAL = {Double.NaN,
+			12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+			2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+			2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+	private static final double Z_CRITICAL = 1.960;
+
+	/**
+	 * Constructor for ParameterTuner
+	 * @param candidates number of candidates in the first round
+	 * @param initialSeeds number of seeds per candidate in the first round
+	 * @param threads number of simulations running at the same time
+	 * @param randomSeed seed used to sample the parameter space
+	 */
+	public ParameterTuner(int candidates, int initialSeeds, int threads,
+			long randomSeed) {
+		this.candidates = candidates;
+		this.initialSeeds = initialSeeds;
+		this.random = new Random(randomSeed);
+		this.executor = Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Tune every profile given on the command line and print the best
+	 * parameters of each one.
+	 * @param args options and profiles, see the class comment
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int candidates = DEFAULT_CANDIDATES;
+		int seeds = DEFAULT_SEEDS;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long randomSeed = 0;
+		ArrayList<String> profiles = new ArrayList<String>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-candidates")) {
+				candidates = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-seeds")) {
+				seeds = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[++i]);
+			}
+			else if (args[i].equals("-random")) {
+				randomSeed = Long.parseLong(args[++i]);
+			}
+			else {
+				profiles.add(args[i]);
+			}
+		}
+		if (profiles.isEmpty()) {
+			profiles.add(DEFAULT_PROFILE);
+		}
+
+		ParameterTuner tuner = new ParameterTuner(candidates, seeds, threads,
+				randomSeed);
+		try {
+			for (String profile:profiles) {
+				String[] parts = profile.split("=", 2);
+				if (parts.length != 2) {
+					throw new IllegalArgumentException(
+							"Profile must be name=jar: " + profile);
+				}
+				// The tuner's own classpath holds a simulation jar as well, a
+				// missing profile jar would silently fall back to that one
+				if (!new File(parts[1]).isFile()) {
+					throw new IllegalArgumentException(
+							"Profile jar not found: " + parts[1]);
+				}
+				Candidate best = tuner.tune(parts[1]);
+
+				System.out.println("Profile " + parts[0] + " (" + parts[1] + ")");
+				System.out.println("  Parameters: " + best.parameters);
+				if (best.scores.size() < 2) {
+					System.out.printf("  No score: %d of %d runs failed%n",
+							best.failed.size(),
+							best.failed.size() + best.scores.size());
+					continue;
+				}
+				System.out.printf("  Score: %.2f, 95%% CI [%.2f, %.2f] over seeds %d-%d%n",
+						best.mean(), best.mean() - best.halfWidth(),
+						best.mean() + best.halfWidth(), best.getFirstSeed(),
+						best.getLastSeed());
+				if (!best.failed.isEmpty()) {
+					System.out.printf("  Failed runs: %d, left out of the score%n",
+							best.failed.size());
+				}
+			}
+		}
+		finally {
+			tuner.shutdown();
+		}
+	}
+
+	/**
+	 * Run successive halving on one building profile.
+	 * @param jar simulation jar of the building
+	 * @return the best candidate, scored only on seeds not used for halving
+	 */
+	public Candidate tune(String jar) throws InterruptedException {
+		String classpath = jar + File.pathSeparator +
+				System.getProperty("java.class.path");
+
+		// Default parameters always take part so the result is never worse
+		// than the default one on the sampled seeds
+		StrategyParameters defaults = new StrategyParameters();
+		ArrayList<StrategyParameters> space = StrategyParameters.space();
+		Collections.shuffle(space, random);
+
+		ArrayList<Candidate> survivors = new ArrayList<Candidate>();
+		survivors.add(new Candidate(defaults));
+		for (StrategyParameters parameters:space) {
+			if (survivors.size() >= candidates) {
+				break;
+			}
+			if (!parameters.toString().equals(defaults.toString())) {
+				survivors.add(new Candidate(parameters));
+			}
+		}
+
+		// Halve the candidates and double the seeds each round
+		int seeds = initialSeeds;
+		int usedSeeds = 0;
+		while (survivors.size() > 1) {
+			evaluate(classpath, survivors, FIRST_SEED, seeds);
+			usedSeeds = seeds;
+			Collections.sort(survivors, new Comparator<Candidate>() {
+				@Override
+				public int compare(Candidate candidate1, Candidate candidate2) {
+					// Candidates whose simulations fail are never preferred
+					if (candidate1.failed.size() != candidate2.failed.size()) {
+						return Integer.compare(candidate1.failed.size(),
+								candidate2.failed.size());
+					}
+					return Double.compare(candidate1.mean(), candidate2.mean());
+				}
+			});
+			survivors.subList((survivors.size() + 1) / 2, survivors.size()).clear();
+			seeds *= 2;
+		}
+
+		// Score the winner on fresh seeds that took no part in choosing it
+		ArrayList<Candidate> winner = new ArrayList<Candidate>();
+		winner.add(new Candidate(survivors.get(0).parameters));
+		evaluate(classpath, winner, FIRST_SEED + usedSeeds, seeds);
+		return winner.get(0);
+	}
+
+	/**
+	 * Stop the threads used to run the simulations.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Run every candidate on the seeds it has not been run on yet, all
+	 * candidates end up with the same seeds.
+	 * @param classpath classpath of the simulation process
+	 * @param candidates candidates to evaluate
+	 * @param firstSeed first seed of the range
+	 * @param seeds number of seeds starting from firstSeed
+	 */
+	private void evaluate(final String classpath, ArrayList<Candidate> candidates,
+			int firstSeed, int seeds) throws InterruptedException {
+		HashMap<Future<Double>, Candidate> owners =
+				new HashMap<Future<Double>, Candidate>();
+		HashMap<Future<Double>, Integer> runs = new HashMap<Future<Double>, Integer>();
+
+		for (final Candidate candidate:candidates) {
+			for (int seed = firstSeed; seed < firstSeed + seeds; seed++) {
+				if (candidate.scores.containsKey(seed) ||
+						candidate.failed.contains(seed)) {
+					continue;
+				}
+				final int runSeed = seed;
+				Future<Double> future = executor.submit(new Callable<Double>() {
+					@Override
+					public Double call() throws Exception {
+						return simulate(classpath, candidate.parameters, runSeed);
+					}
+				});
+				owners.put(future, candidate);
+				runs.put(future, seed);
+			}
+		}
+
+		for (Future<Double> future:owners.keySet()) {
+			try {
+				owners.get(future).scores.put(runs.get(future), future.get());
+			} catch (ExecutionException e) {
+				// Keep failed runs out of the scores so they cannot spoil the
+				// mean and confidence interval
+				System.err.println("Seed " + runs.get(future) + " failed for " +
+						owners.get(future).parameters + ": " +
+						e.getCause().getMessage());
+				owners.get(future).failed.add(runs.get(future));
+			}
+		}
+	}
+
+	/**
+	 * Run one simulation in its own JVM.
+	 * @param classpath classpath of the simulation process
+	 * @param parameters parameters passed as system properties
+	 * @param seed seed of the mail generator
+	 * @return final score of the simulation
+	 * @throws IllegalStateException if the simulation timed out or did not
+	 * print a final score
+	 */
+	private static double simulate(String classpath,
+			StrategyParameters parameters, int seed)
+					throws IOException, InterruptedException {
+		ArrayList<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" +
+				File.separator + "java");
+		command.addAll(parameters.toArguments());
+		command.add("-cp");
+		command.add(classpath);
+		command.add(SIMULATION);
+		command.add(String.valueOf(seed));
+
+		// Write the output to a file so a stuck simulation can time out
+		File output = File.createTempFile("simulation", ".txt");
+		try {
+			Process process = new ProcessBuilder(command)
+					.redirectErrorStream(true)
+					.redirectOutput(output)
+					.start();
+			if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				process.destroyForcibly();
+				throw new IllegalStateException("timed out after " +
+						TIMEOUT_SECONDS + " seconds");
+			}
+
+			for (String line:Files.readAllLines(output.toPath())) {
+				if (line.startsWith(SCORE)) {
+					return Double.parseDouble(line.substring(SCORE.length())
+							.trim().replace(',', '.'));
+				}
+			}
+			throw new IllegalStateException("no final score, exit code " +
+					process.exitValue());
+		}
+		finally {
+			output.delete();
+		}
+	}
+
+	/**
+	 * Parameter set together with its score on each seed.
+	 */
+	public static class Candidate {
+		/** Instance Variables */
+		private StrategyParameters parameters;
+		private HashMap<Integer, Double> scores; // score of each seed
+		private HashSet<Integer> failed; // seeds whose simulation failed
+
+		/**
+		 * Constructor for Candidate
+		 * @param parameters parameters being evaluated
+		 */
+		public Candidate(StrategyParameters parameters) {
+			this.parameters = parameters;
+			this.scores = new HashMap<Integer, Double>();
+			this.failed = new HashSet<Integer>();
+		}
+
+		/**
+		 * @return mean final score over the successful runs so far
+		 */
+		public double mean() {
+			double sum = 0;
+			for (double score:scores.values()) {
+				sum += score;
+			}
+
+			return sum / scores.size();
+		}
+
+		/**
+		 * @return half width of the 95% confidence interval of the mean over
+		 * the successful runs
+		 */
+		public double halfWidth() {
+			int n = scores.size();
+			if (n < 2) {
+				return Double.POSITIVE_INFINITY;
+			}
+
+			double mean = mean();
+			double squares = 0;
+			for (double score:scores.values()) {
+				squares += (score - mean) * (score - mean);
+			}
+			double critical = (n - 1 < T_CRITICAL.length) ?
+					T_CRITICAL[n - 1] : Z_CRITICAL;
+
+			return critical * Math.sqrt(squares / (n - 1) / n);
+		}
+
+		public StrategyParameters getParameters() {
+			return parameters;
+		}
+
+		/**
+		 * @return lowest seed the candidate has been run on
+		 */
+		public int getFirstSeed() {
+			return Collections.min(seeds());
+		}
+
+		/**
+		 * @return highest seed the candidate has been run on
+		 */
+		public int getLastSeed() {
+			return Collections.max(seeds());
+		}
+
+		/**
+		 * @return every seed the candidate has been run on, failed or not
+		 */
+		private HashSet<Integer> seeds() {
+			HashSet<Integer> seeds = new HashSet<Integer>(scores.keySet());
+			seeds.addAll(failed);
+
+			return seeds;
+		}
+	}
+}